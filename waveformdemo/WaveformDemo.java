@@ -21,6 +21,7 @@ import javax.swing.JLabel;
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
+import javax.swing.filechooser.FileSystemView;
 
 import java.awt.BorderLayout;
 import javax.swing.border.LineBorder;
@@ -38,11 +39,18 @@ import java.awt.image.BufferedImage;
 import java.awt.Transparency;
 import java.awt.geom.Path2D;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 
+import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import java.awt.event.ActionListener;
 import java.awt.event.ActionEvent;
@@ -50,18 +58,35 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.HierarchyListener;
+import java.awt.event.HierarchyEvent;
 
 import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.AudioFileFormat;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
-import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.Mixer;
 import javax.sound.sampled.UnsupportedAudioFileException;
 import javax.sound.sampled.LineUnavailableException;
 
+import waveformdemo.engine.Block;
+import waveformdemo.engine.BlockSink;
+import waveformdemo.engine.Decode;
+import waveformdemo.engine.LineSink;
+import waveformdemo.engine.Pcm;
+import waveformdemo.engine.Pipeline;
+import waveformdemo.engine.Resampler;
+import waveformdemo.engine.SoundIndex;
+import waveformdemo.engine.StreamSource;
+import waveformdemo.engine.TailStream;
+import waveformdemo.engine.Window;
+
 public class WaveformDemo
 implements ActionListener {
     public static void main(String[] args) {
+        Prewarm.start();
+        
         EventQueue.invokeLater(new Runnable() {
             @Override
             public void run() {
@@ -72,6 +97,14 @@ implements ActionListener {
     
     public static final int DEF_BUFFER_SAMPLE_SZ = 1024;
     
+    public static final int DISPLAY_WIDTH = DEF_BUFFER_SAMPLE_SZ / 2;
+    public static final int DISPLAY_HEIGHT = 128;
+    
+    public static final Resampler.Quality DEF_RESAMPLE_QUALITY = Resampler.Quality.STANDARD;
+    
+    /* how far behind a tailed file playback may fall before jumping ahead */
+    public static final int TAIL_MAX_LAG_BLOCKS = 2;
+    
     public static final Color LIGHT_BLUE = new Color(128, 192, 255);
     public static final Color DARK_BLUE = new Color(0, 0, 127);
     
@@ -83,6 +116,11 @@ implements ActionListener {
         public Object getLock();
         public PlayStat getStat();
         public File getFile();
+        public boolean isTail();
+        public SoundIndex getIndex();
+        public boolean isSkipSilence();
+        public boolean takeNext();
+        public int getDisplayWidth();
         public void playbackEnded();
         public void drawDisplay(float[] samples, int svalid);
     }
@@ -94,13 +132,27 @@ implements ActionListener {
     private JToolBar playbackTools = new JToolBar();
     
     private ToolsButton bOpen = new ToolsButton("Open");
+    private ToolsButton bTail = new ToolsButton("Tail");
     private ToolsButton bPlay = new ToolsButton("Play");
     private ToolsButton bPause = new ToolsButton("Pause");
     private ToolsButton bStop = new ToolsButton("Stop");
+    private ToolsButton bSkip = new ToolsButton("Skip off");
+    private ToolsButton bNext = new ToolsButton("Next");
+    
+    private JFileChooser openDiag;
     
     private File audioFile;
+    private boolean tailMode;
     private AudioFormat audioFormat;
     
+    private IndexLoop indexLoop;
+    private volatile SoundIndex soundIndex;
+    private volatile boolean skipSilence;
+    private volatile boolean nextRequested;
+    
+    /* visible pixels across the display, 0 when nobody can see it */
+    private volatile int displayWidth;
+    
     private final Object statLock = new Object();
     
     private volatile PlayStat playStat = PlayStat.NO_FILE;
@@ -121,6 +173,35 @@ implements ActionListener {
             return audioFile;
         }
         
+        @Override
+        public boolean isTail() {
+            return tailMode;
+        }
+        
+        @Override
+        public SoundIndex getIndex() {
+            return soundIndex;
+        }
+        
+        @Override
+        public boolean isSkipSilence() {
+            return skipSilence;
+        }
+        
+        @Override
+        public boolean takeNext() {
+            if(nextRequested) {
+                nextRequested = false;
+                return true;
+            }
+            return false;
+        }
+        
+        @Override
+        public int getDisplayWidth() {
+            return displayWidth;
+        }
+        
         @Override
         public void playbackEnded() {
             synchronized(statLock) {
@@ -146,18 +227,52 @@ implements ActionListener {
             public void windowClosing(WindowEvent we) {
                 systemExit();
             }
+            @Override
+            public void windowOpened(WindowEvent we) {
+                Prewarm.report("first frame", Prewarm.MAIN_NANOS);
+                updateDisplayWidth();
+            }
+            @Override
+            public void windowIconified(WindowEvent we) {
+                updateDisplayWidth();
+            }
+            @Override
+            public void windowDeiconified(WindowEvent we) {
+                updateDisplayWidth();
+            }
+        });
+        
+        displayPanel.addHierarchyListener(new HierarchyListener() {
+            @Override
+            public void hierarchyChanged(HierarchyEvent he) {
+                if((he.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                    updateDisplayWidth();
+                }
+            }
+        });
+        displayPanel.addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent ce) {
+                updateDisplayWidth();
+            }
         });
         
         playbackTools.setFloatable(false);
         playbackTools.add(bOpen);
+        playbackTools.add(bTail);
         playbackTools.add(bPlay);
         playbackTools.add(bPause);
         playbackTools.add(bStop);
+        playbackTools.add(bSkip);
+        playbackTools.add(bNext);
         
         bOpen.addActionListener(this);
+        bTail.addActionListener(this);
         bPlay.addActionListener(this);
         bPause.addActionListener(this);
         bStop.addActionListener(this);
+        bSkip.addActionListener(this);
+        bNext.addActionListener(this);
         
         fileLabel.setOpaque(true);
         fileLabel.setBackground(Color.BLACK);
@@ -178,6 +293,40 @@ implements ActionListener {
         mainFrame.setLocationRelativeTo(null);
         
         mainFrame.setVisible(true);
+        
+        /* after the first frame, see Prewarm */
+        
+        EventQueue.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                chooser();
+            }
+        });
+    }
+    
+    private JFileChooser chooser() {
+        if(openDiag == null) {
+            openDiag = new JFileChooser();
+        }
+        return openDiag;
+    }
+    
+    private void updateDisplayWidth() {
+        
+        /*
+         * kept up to date from the EDT so the playback loop can
+         * read it without touching Swing. Swing can't tell when
+         * another window covers ours so that still counts as shown.
+         * 
+         */
+        
+        boolean iconified = (mainFrame.getExtendedState() & JFrame.ICONIFIED) != 0;
+        
+        if(displayPanel.isShowing() && !iconified) {
+            displayWidth = displayPanel.getVisibleRect().width;
+        } else {
+            displayWidth = 0;
+        }
     }
     
     private void systemExit() {
@@ -205,8 +354,8 @@ implements ActionListener {
         System.exit(0);
     }
     
-    private void loadAudio() {
-        JFileChooser openDiag = new JFileChooser();
+    private void loadAudio(boolean tail) {
+        JFileChooser openDiag = chooser();
         
         if(JFileChooser.APPROVE_OPTION == openDiag.showOpenDialog(mainFrame)) {
             File selected = openDiag.getSelectedFile();
@@ -224,13 +373,33 @@ implements ActionListener {
                  * 
                  */
                 
-                AudioFileFormat fmt = AudioSystem.getAudioFileFormat(selected);
+                AudioFormat fmt;
+                if(tail) {
+                    fmt = TailStream.getFormat(selected);
+                } else {
+                    fmt = AudioSystem.getAudioFileFormat(selected).getFormat();
+                }
                 
                 audioFile = selected;
-                audioFormat = fmt.getFormat();
-                fileLabel.setText(audioFile.getName());
+                audioFormat = fmt;
+                tailMode = tail;
+                fileLabel.setText(audioFile.getName() + (tail ? " (tail)" : ""));
                 playStat = PlayStat.STOPPED;
                 
+                /* a growing file has nothing fixed to index */
+                
+                if(indexLoop != null) {
+                    indexLoop.cancel(false);
+                }
+                
+                soundIndex = null;
+                indexLoop = null;
+                
+                if(!tail) {
+                    indexLoop = new IndexLoop(selected);
+                    indexLoop.execute();
+                }
+                
             } catch(IOException ioe) {
                 showError(ioe);
             } catch(UnsupportedAudioFileException uafe) {
@@ -243,14 +412,14 @@ implements ActionListener {
     public void actionPerformed(ActionEvent ae) {
         Object source = ae.getSource();
         
-        if(source == bOpen) {
+        if(source == bOpen || source == bTail) {
             synchronized(statLock) {
                 if(playStat == PlayStat.PLAYING) {
                     playStat = PlayStat.STOPPED;
                 }
             }
             
-            loadAudio();
+            loadAudio(source == bTail);
             
         } else if(source == bPlay
                 && audioFile != null
@@ -298,6 +467,17 @@ implements ActionListener {
                     }
                 }
             }
+            
+        } else if(source == bSkip) {
+            
+            skipSilence = !skipSilence;
+            bSkip.setText(skipSilence ? "Skip on" : "Skip off");
+            
+        } else if(source == bNext
+                && playStat == PlayStat.PLAYING
+                && soundIndex != null) {
+            
+            nextRequested = true;
         }
     }
     
@@ -315,6 +495,8 @@ implements ActionListener {
         
         private final PlayerRef playerRef;
         
+        private final long created = System.nanoTime();
+        
         public PlaybackLoop(PlayerRef pr) {
             playerRef = pr;
         }
@@ -323,61 +505,147 @@ implements ActionListener {
         public Void doInBackground() {
             try {
                 AudioInputStream in = null;
-                SourceDataLine out = null;
+                LineSink out = null;
                 
                 try {
                     try {
-                        final AudioFormat audioFormat = (
-                            AudioSystem.getAudioFileFormat(playerRef.getFile()).getFormat()
-                        );
-                        
-                        in = AudioSystem.getAudioInputStream(playerRef.getFile());
-                        out = AudioSystem.getSourceDataLine(audioFormat);
-                        
-                        final int normalBytes = normalBytesFromBits(audioFormat.getSampleSizeInBits());
+                        if(playerRef.isTail()) {
+                            in = TailStream.open(playerRef.getFile());
+                        } else {
+                            in = AudioSystem.getAudioInputStream(playerRef.getFile());
+                        }
                         
-                        float[] samples = new float[DEF_BUFFER_SAMPLE_SZ * audioFormat.getChannels()];
-                        long[] transfer = new long[samples.length];
-                        byte[] bytes = new byte[samples.length * normalBytes];
+                        final AudioFormat audioFormat = in.getFormat();
                         
-                        out.open(audioFormat, bytes.length);
-                        out.start();
+                        out = LineSink.open(audioFormat, DEF_BUFFER_SAMPLE_SZ, DEF_RESAMPLE_QUALITY);
+                        out.getLine().start();
+                        out.prime(6);
                         
                         /*
-                         * feed the output some zero samples
-                         * helps prevent the 'stutter' issue.
+                         * the line gets each block before the window
+                         * is applied in place, the display after.
                          * 
                          */
                         
-                        for(int feed = 0; feed < 6; feed++) {
-                            out.write(bytes, 0, bytes.length);
-                        }
+                        final StreamSource source = new StreamSource(in);
+                        final Decode decode = new Decode();
+                        final Window window = new Window();
+                        
+                        final Pipeline pipeline = new Pipeline(
+                            source, new Block(audioFormat, DEF_BUFFER_SAMPLE_SZ)
+                        );
+                        
+                        pipeline
+                            .add(decode)
+                            .tap(out)
+                            .add(window)
+                            .tap(new BlockSink() {
+                                @Override
+                                public void accept(Block block) {
+                                    if(window.isEnabled() && block.getSampleCount() > 0) {
+                                        playerRef.drawDisplay(block.getSamples(), block.getSampleCount());
+                                    }
+                                }
+                            });
+                        
+                        final int blockBytes = pipeline.getBlock().getBytes().length;
                         
                         int bread;
+                        boolean heard = false;
                         
                         play_loop: do {
                             while(playerRef.getStat() == PlayStat.PLAYING) {
                                 
-                                if((bread = in.read(bytes)) == -1) {
+                                /*
+                                 * jumps are a lookup in the index
+                                 * and a skip on the stream so they
+                                 * add nothing to the output latency.
+                                 * 
+                                 */
+                                
+                                /*
+                                 * a tailed file grows at the recorder's pace
+                                 * but is only read as fast as the line drains.
+                                 * a GC pause, an underrun or a recorder clock
+                                 * running slightly fast leaves playback behind
+                                 * for good, so jump to the live edge whenever
+                                 * more than a couple of blocks are waiting.
+                                 * 
+                                 */
+                                
+                                if(playerRef.isTail()
+                                        && in.available() > TAIL_MAX_LAG_BLOCKS * blockBytes) {
                                     
-                                    break play_loop; // eof
+                                    source.skipToLiveEdge();
                                 }
                                 
-                                samples = unpack(bytes, transfer, samples, bread, audioFormat);
-                                samples = window(samples, bread / normalBytes, audioFormat);
+                                SoundIndex index = playerRef.getIndex();
+                                if(index != null) {
+                                    long frame = source.getFrame();
+                                    long target = frame;
+                                    
+                                    if(playerRef.takeNext()) {
+                                        target = Math.max(index.nextSound(frame), frame);
+                                    } else if(playerRef.isSkipSilence()) {
+                                        target = index.silenceEnd(frame);
+                                    }
+                                    
+                                    if(target > frame) {
+                                        source.skip(target - frame);
+                                    }
+                                }
+                                
+                                /*
+                                 * nobody watching means no decoding at all unless
+                                 * the line needs converted samples, and there is no
+                                 * point decoding more frames than there are pixels.
+                                 * 
+                                 */
+                                
+                                final int width = playerRef.getDisplayWidth();
+                                
+                                if(out.isConverting()) {
+                                    decode.setTargetWidth(Decode.FULL_RESOLUTION);
+                                } else {
+                                    decode.setTargetWidth(width);
+                                }
                                 
-                                playerRef.drawDisplay(samples, bread / normalBytes);
+                                window.setEnabled(width > 0);
+                                
+                                if((bread = pipeline.step()) == -1) {
+                                    pipeline.finish();
+                                    
+                                    break play_loop; // eof
+                                }
                                 
-                                out.write(bytes, 0, bread);
+                                if(bread == 0) {
+                                    continue; // tailed file hasn't grown yet
+                                }
+                                
+                                if(!heard) {
+                                    heard = true;
+                                    Prewarm.reportFirstAudio(created);
+                                }
                             }
                             
                             if(playerRef.getStat() == PlayStat.PAUSED) {
-                                out.flush();
+                                out.getLine().flush();
                                 try {
                                     synchronized(playerRef.getLock()) {
                                         playerRef.getLock().wait(1000L);
                                     }
                                 } catch(InterruptedException ie) {}
+                                
+                                /*
+                                 * a tailed file kept growing while paused,
+                                 * resume at the live edge rather than lag
+                                 * the recorder by the length of the pause.
+                                 * 
+                                 */
+                                
+                                if(playerRef.isTail()) {
+                                    source.skipToLiveEdge();
+                                }
                                 continue;
                             } else {
                                 break;
@@ -394,7 +662,6 @@ implements ActionListener {
                         in.close();
                     }
                     if(out != null) {
-                        out.flush();
                         out.close();
                     }
                 }
@@ -419,131 +686,101 @@ implements ActionListener {
         }
     }
     
-    public static float[] unpack(
-        byte[] bytes,
-        long[] transfer,
-        float[] samples,
-        int bvalid,
-        AudioFormat fmt
-    ) {
-        if(fmt.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
-                && fmt.getEncoding() != AudioFormat.Encoding.PCM_UNSIGNED) {
-            
-            return samples;
-        }
-        
-        final int bitsPerSample = fmt.getSampleSizeInBits();
-        final int bytesPerSample = bitsPerSample / 8;
-        final int normalBytes = normalBytesFromBits(bitsPerSample);
+    private class IndexLoop
+    extends SwingWorker<SoundIndex, Void> {
         
         /*
-         * not the most DRY way to do this but it's a bit more efficient.
-         * otherwise there would either have to be 4 separate methods for
-         * each combination of endianness/signedness or do it all in one
-         * loop and check the format for each sample.
-         * 
-         * a helper array (transfer) allows the logic to be split up
-         * but without being too repetetive.
-         * 
-         * here there are two loops converting bytes to raw long samples.
-         * integral primitives in Java get sign extended when they are
-         * promoted to a larger type so the & 0xffL mask keeps them intact.
+         * builds the sound index in the background from the
+         * same unpacked blocks playback produces, or loads it
+         * from beside the file if it was built before.
          * 
          */
         
-        if(fmt.isBigEndian()) {
-            for(int i = 0, k = 0, b; i < bvalid; i += normalBytes, k++) {
-                transfer[k] = 0L;
-                
-                int least = i + normalBytes - 1;
-                for(b = 0; b < normalBytes; b++) {
-                    transfer[k] |= (bytes[least - b] & 0xffL) << (8 * b);
-                }
-            }
-        } else {
-            for(int i = 0, k = 0, b; i < bvalid; i += normalBytes, k++) {
-                transfer[k] = 0L;
-                
-                for(b = 0; b < normalBytes; b++) {
-                    transfer[k] |= (bytes[i + b] & 0xffL) << (8 * b);
-                }
-            }
-        }
-        
-        final long fullScale = (long)Math.pow(2.0, bitsPerSample - 1);
+        private final File file;
         
-        /*
-         * the OR is not quite enough to convert,
-         * the signage needs to be corrected.
-         * 
-         */
+        private IndexLoop(File file) {
+            this.file = file;
+        }
         
-        if(fmt.getEncoding() == AudioFormat.Encoding.PCM_SIGNED) {
-            
-            /*
-             * if the samples were signed, they must be
-             * extended to the 64-bit long.
-             * 
-             * the arithmetic right shift in Java  will fill
-             * the left bits with 1's if the MSB is set.
-             * 
-             * so sign extend by first shifting left so that
-             * if the sample is supposed to be negative,
-             * it will shift the sign bit in to the 64-bit MSB
-             * then shift back and fill with 1's.
-             * 
-             * as an example, imagining these were 4-bit samples originally
-             * and the destination is 8-bit, if we have a hypothetical
-             * sample -5 that ought to be negative, the left shift looks
-             * like this:
-             * 
-             *     00001011
-             *  <<  (8 - 4)
-             *  ===========
-             *     10110000
-             * 
-             * (except the destination is 64-bit and the original
-             * bit depth from the file could be anything.)
-             * 
-             * and the right shift now fills with 1's:
-             * 
-             *     10110000
-             *  >>  (8 - 4)
-             *  ===========
-             *     11111011
-             * 
-             */
+        @Override
+        public SoundIndex doInBackground() throws IOException, UnsupportedAudioFileException {
+            SoundIndex index = SoundIndex.load(file);
+            if(index != null) {
+                return index;
+            }
             
-            final long signShift = 64L - bitsPerSample;
+            AudioInputStream in = AudioSystem.getAudioInputStream(file);
             
-            for(int i = 0; i < transfer.length; i++) {
-                transfer[i] = (
-                    (transfer[i] << signShift) >> signShift
+            try {
+                final AudioFormat fmt = in.getFormat();
+                
+                if(!Pcm.isPcm(fmt)) {
+                    return null;
+                }
+                
+                SoundIndex.Builder builder = new SoundIndex.Builder(fmt, DEF_BUFFER_SAMPLE_SZ);
+                
+                Pipeline pipeline = new Pipeline(
+                    new StreamSource(in), new Block(fmt, DEF_BUFFER_SAMPLE_SZ)
                 );
+                
+                pipeline
+                    .add(new Decode())
+                    .tap(builder);
+                
+                while(pipeline.step() != -1) {
+                    if(isCancelled()) {
+                        return null;
+                    }
+                }
+                
+                index = builder.build();
+                
+            } finally {
+                in.close();
             }
-        } else {
             
-            /*
-             * unsigned samples are easier since they
-             * will be read correctly in to the long.
-             * 
-             * so just sign them:
-             * subtract 2^(bits - 1) so the center is 0.
-             * 
-             */
-            
-            for(int i = 0; i < transfer.length; i++) {
-                transfer[i] -= fullScale;
+            try {
+                index.save(file);
+            } catch(IOException ioe) {
+                
+                /* only a cache, it gets rebuilt next time */
             }
+            
+            return index;
         }
         
-        /* finally normalize to range of -1.0f to 1.0f */
-        
-        for(int i = 0; i < transfer.length; i++) {
-            samples[i] = (float)transfer[i] / (float)fullScale;
+        @Override
+        public void done() {
+            try {
+                SoundIndex index = get();
+                
+                if(file == audioFile) {
+                    soundIndex = index;
+                }
+                
+            } catch(InterruptedException io) {
+            } catch(CancellationException ce) {
+            } catch(ExecutionException ee) {
+                showError(ee.getCause());
+            }
         }
-        
-        return samples;
+    }
+    
+    /*
+     * the conversions live in the engine package now so they
+     * can be used without Swing, these stay for existing callers.
+     * 
+     */
+    
+    public static float[] unpack(
+        byte[] bytes,
+        long[] transfer,
+        float[] samples,
+        int bvalid,
+        AudioFormat fmt
+    ) {
+        return Pcm.unpack(bytes, transfer, samples, bvalid, fmt);
     }
     
     public static float[] window(
@@ -551,54 +788,18 @@ implements ActionListener {
         int svalid,
         AudioFormat fmt
     ) {
-        /*
-         * most basic window function
-         * multiply the window against a sine curve, tapers ends
-         * 
-         * nested loops here show a paradigm for processing multi-channel formats
-         * the interleaved samples can be processed "in place"
-         * inner loop processes individual channels using an offset
-         * 
-         */
-        
-        int channels = fmt.getChannels();
-        int slen = svalid / channels;
-        
-        for(int ch = 0, k, i; ch < channels; ch++) {
-            for(i = ch, k = 0; i < svalid; i += channels) {
-                samples[i] *= Math.sin(Math.PI * k++ / (slen - 1));
-            }
-        }
-        
-        return samples;
+        return Pcm.window(samples, svalid, fmt);
     }
     
     public static int normalBytesFromBits(int bitsPerSample) {
-        
-        /*
-         * some formats allow for bit depths in non-multiples of 8.
-         * they will, however, typically pad so the samples are stored
-         * that way. AIFF is one of these formats.
-         * 
-         * so the expression:
-         * 
-         *  bitsPerSample + 7 >> 3
-         * 
-         * computes a division of 8 rounding up (for positive numbers).
-         * 
-         * this is basically equivalent to:
-         * 
-         *  (int)Math.ceil(bitsPerSample / 8.0)
-         * 
-         */
-        
-        return bitsPerSample + 7 >> 3;
+        return Pcm.normalBytesFromBits(bitsPerSample);
     }
     
     public class DisplayPanel
     extends JPanel {
         
-        private final BufferedImage image;
+        /* created by Prewarm, fetched on first use */
+        private volatile BufferedImage image;
         
         private final Path2D.Float[] paths = {
             new Path2D.Float(), new Path2D.Float(), new Path2D.Float()
@@ -606,25 +807,21 @@ implements ActionListener {
         
         private final Object pathLock = new Object();
         
-        {
-            Dimension pref = getPreferredSize();
-            
-            image = (
-                GraphicsEnvironment
-                .getLocalGraphicsEnvironment()
-                .getDefaultScreenDevice()
-                .getDefaultConfiguration()
-                .createCompatibleImage(
-                    pref.width, pref.height, Transparency.OPAQUE
-                )
-            );
-        }
-        
         public DisplayPanel() {
             setOpaque(false);
         }
         
+        private BufferedImage image() {
+            BufferedImage img = image;
+            if(img == null) {
+                image = img = Prewarm.image();
+            }
+            return img;
+        }
+        
         public void reset() {
+            BufferedImage image = image();
+            
             Graphics2D g2d = image.createGraphics();
             g2d.setBackground(Color.BLACK);
             g2d.clearRect(0, 0, image.getWidth(), image.getHeight());
@@ -636,6 +833,8 @@ implements ActionListener {
                 return;
             }
             
+            final BufferedImage image = image();
+            
             /* shuffle */
             
             Path2D.Float current = paths[2];
@@ -683,7 +882,7 @@ implements ActionListener {
             }
             
             paths[0] = current;
-                
+            
             Graphics2D g2d = image.createGraphics();
             
             synchronized(pathLock) {
@@ -717,13 +916,13 @@ implements ActionListener {
             super.paintComponent(g);
             
             synchronized(pathLock) {
-                g.drawImage(image, 0, 0, null);
+                g.drawImage(image(), 0, 0, null);
             }
         }
         
         @Override
         public Dimension getPreferredSize() {
-            return new Dimension(DEF_BUFFER_SAMPLE_SZ / 2, 128);
+            return new Dimension(DISPLAY_WIDTH, DISPLAY_HEIGHT);
         }
         
         @Override
@@ -737,6 +936,152 @@ implements ActionListener {
         }
     }
     
+    public static final class Prewarm {
+        
+        /*
+         * work that used to happen serially on the EDT, either while
+         * building the first frame or in the middle of the first Open
+         * or Play: the sound provider scan, mixer enumeration, the
+         * GraphicsEnvironment lookup for the display image and the
+         * FileSystemView / shell folder lookups that make the first
+         * JFileChooser slow. main starts them all before the EDT starts
+         * building the frame and the EDT only waits on one if it gets
+         * there before the task finishes.
+         * 
+         * the JFileChooser itself is still built on the EDT, just after
+         * the frame is shown, by which time the file system work is
+         * done or well on the way.
+         * 
+         * run with -Dwaveformdemo.timing=true for a time-to-first-frame
+         * (since main) and time-to-first-audio (since Play) report.
+         * 
+         */
+        
+        public static final boolean TIMING = Boolean.getBoolean("waveformdemo.timing");
+        
+        public static final long MAIN_NANOS = System.nanoTime();
+        
+        private static final AtomicBoolean firstAudio = new AtomicBoolean();
+        
+        private static Future<BufferedImage> image;
+        
+        private Prewarm() {}
+        
+        public static synchronized void start() {
+            if(image != null) {
+                return;
+            }
+            
+            ExecutorService pool = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "Prewarm");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+            
+            pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    
+                    /*
+                     * no reader accepts an empty stream so every
+                     * file reader provider gets loaded and asked.
+                     * 
+                     */
+                    
+                    try {
+                        AudioSystem.getAudioFileFormat(new ByteArrayInputStream(new byte[0]));
+                    } catch(UnsupportedAudioFileException uafe) {
+                    } catch(IOException ioe) {}
+                    
+                    report("audio providers", MAIN_NANOS);
+                }
+            });
+            
+            pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for(Mixer.Info info : AudioSystem.getMixerInfo()) {
+                        AudioSystem.getMixer(info).getSourceLineInfo();
+                    }
+                    
+                    report("mixers", MAIN_NANOS);
+                }
+            });
+            
+            image = pool.submit(new Callable<BufferedImage>() {
+                @Override
+                public BufferedImage call() {
+                    return (
+                        GraphicsEnvironment
+                        .getLocalGraphicsEnvironment()
+                        .getDefaultScreenDevice()
+                        .getDefaultConfiguration()
+                        .createCompatibleImage(
+                            DISPLAY_WIDTH, DISPLAY_HEIGHT, Transparency.OPAQUE
+                        )
+                    );
+                }
+            });
+            
+            pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    FileSystemView fsv = FileSystemView.getFileSystemView();
+                    
+                    fsv.getRoots();
+                    fsv.getHomeDirectory();
+                    fsv.getDefaultDirectory();
+                    
+                    report("file system view", MAIN_NANOS);
+                }
+            });
+            
+            pool.shutdown();
+        }
+        
+        public static BufferedImage image() {
+            start();
+            return await(image);
+        }
+        
+        private static <T> T await(Future<T> task) {
+            boolean interrupted = false;
+            
+            try {
+                for(;;) {
+                    try {
+                        return task.get();
+                    } catch(InterruptedException ie) {
+                        interrupted = true;
+                    }
+                }
+            } catch(ExecutionException ee) {
+                throw new IllegalStateException(ee.getCause());
+            } finally {
+                if(interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        
+        public static void report(String event, long sinceNanos) {
+            if(TIMING) {
+                System.err.printf(
+                    "%s: %.1f ms%n", event, (System.nanoTime() - sinceNanos) / 1e6
+                );
+            }
+        }
+        
+        public static void reportFirstAudio(long playNanos) {
+            if(firstAudio.compareAndSet(false, true)) {
+                report("first audio", playNanos);
+            }
+        }
+    }
+    
     public static class ToolsButton
     extends JButton {
         public ToolsButton(String text) {
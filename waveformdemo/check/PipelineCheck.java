@@ -0,0 +1,132 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.check;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import java.util.Random;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import waveformdemo.engine.Block;
+import waveformdemo.engine.BlockSink;
+import waveformdemo.engine.Decode;
+import waveformdemo.engine.Pcm;
+import waveformdemo.engine.Pipeline;
+import waveformdemo.engine.StreamSource;
+import waveformdemo.engine.Window;
+
+public final class PipelineCheck {
+    
+    /*
+     * throughput of Pipeline against the loop PlaybackLoop used
+     * to wire up by hand, run with
+     * 
+     *  java waveformdemo.check.PipelineCheck
+     * 
+     * both decode and window the same in-memory stream in blocks
+     * of BLOCK_FRAMES and hand every block to a consumer. rounds
+     * alternate between the two and the best round of each is
+     * compared. exits with status 1 if the pipeline is more than
+     * TOLERANCE slower.
+     * 
+     */
+    
+    private static final AudioFormat FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+    
+    private static final int SECONDS = 60;
+    private static final int BLOCK_FRAMES = 1024;
+    private static final int ROUNDS = 8;
+    
+    private static final double TOLERANCE = 0.10;
+    
+    /* keeps the consumers from being optimized away */
+    private static double sink;
+    
+    private PipelineCheck() {}
+    
+    public static void main(String[] args) throws IOException {
+        byte[] data = new byte[(int)FORMAT.getFrameRate() * SECONDS * FORMAT.getFrameSize()];
+        new Random(1L).nextBytes(data);
+        
+        long bestHand = Long.MAX_VALUE;
+        long bestPipeline = Long.MAX_VALUE;
+        
+        for(int round = 0; round < ROUNDS; round++) {
+            bestHand = Math.min(bestHand, handLoop(data));
+            bestPipeline = Math.min(bestPipeline, pipeline(data));
+        }
+        
+        double ratio = (double)bestPipeline / bestHand;
+        boolean ok = ratio <= 1.0 + TOLERANCE;
+        
+        System.out.printf(
+            "%d s of %s%n  hand loop %7.1f ms%n  pipeline  %7.1f ms  (%.2fx, max %.2fx)  %s%n",
+            SECONDS, FORMAT, bestHand / 1e6, bestPipeline / 1e6,
+            ratio, 1.0 + TOLERANCE, ok ? "ok" : "FAIL"
+        );
+        
+        if(!ok) {
+            System.exit(1);
+        }
+    }
+    
+    private static AudioInputStream stream(byte[] data) {
+        return new AudioInputStream(
+            new ByteArrayInputStream(data), FORMAT, data.length / FORMAT.getFrameSize()
+        );
+    }
+    
+    private static long handLoop(byte[] data) throws IOException {
+        AudioInputStream in = stream(data);
+        
+        final int normalBytes = Pcm.normalBytesFromBits(FORMAT.getSampleSizeInBits());
+        
+        float[] samples = new float[BLOCK_FRAMES * FORMAT.getChannels()];
+        long[] transfer = new long[samples.length];
+        byte[] bytes = new byte[samples.length * normalBytes];
+        
+        long start = System.nanoTime();
+        
+        int bread;
+        while((bread = in.read(bytes)) != -1) {
+            samples = Pcm.unpack(bytes, transfer, samples, bread, FORMAT);
+            samples = Pcm.window(samples, bread / normalBytes, FORMAT);
+            
+            sink += samples[bread / normalBytes / 2];
+        }
+        
+        return System.nanoTime() - start;
+    }
+    
+    private static long pipeline(byte[] data) throws IOException {
+        Pipeline pipeline = new Pipeline(
+            new StreamSource(stream(data)), new Block(FORMAT, BLOCK_FRAMES)
+        );
+        
+        pipeline
+            .add(new Decode())
+            .add(new Window())
+            .tap(new BlockSink() {
+                @Override
+                public void accept(Block block) {
+                    sink += block.getSamples()[block.getSampleCount() / 2];
+                }
+            });
+        
+        long start = System.nanoTime();
+        
+        pipeline.run();
+        
+        return System.nanoTime() - start;
+    }
+}
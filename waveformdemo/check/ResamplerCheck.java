@@ -0,0 +1,188 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.check;
+
+import waveformdemo.engine.Resampler;
+
+public final class ResamplerCheck {
+    
+    /*
+     * THD+N and speed check for Resampler, run with
+     * 
+     *  java waveformdemo.check.ResamplerCheck
+     * 
+     * exits with status 1 if any preset is above its THD+N limit
+     * or slower than MIN_REAL_TIME times real time.
+     * 
+     * a 1 kHz sine at half scale is converted in blocks the
+     * size playback uses. a sine at the output rate is fitted
+     * to the result by least squares and whatever the fit
+     * doesn't explain counts as distortion and noise. the
+     * filter's start up is left out of the measurement.
+     * 
+     */
+    
+    private static final double TONE_HZ = 1000.0;
+    private static final double AMPLITUDE = 0.5;
+    
+    private static final int CHANNELS = 2;
+    private static final int BLOCK_FRAMES = 1024;
+    private static final int SECONDS = 4;
+    private static final int SETTLE_FRAMES = 2000;
+    
+    private static final int BENCH_BLOCKS = 4000;
+    
+    /*
+     * limits leave a few dB under what each preset measures
+     * so only a real regression fails. the speed limit is far
+     * below the measured figures so a slow machine still passes
+     * but anything that isn't streaming comfortably does not.
+     * 
+     */
+    
+    private static final double FAST_LIMIT_DB = -60.0;
+    private static final double STANDARD_LIMIT_DB = -85.0;
+    private static final double BEST_LIMIT_DB = -105.0;
+    
+    private static final double MIN_REAL_TIME = 10.0;
+    
+    private ResamplerCheck() {}
+    
+    public static void main(String[] args) {
+        float[][] conversions = {
+            { 44100f, 48000f },
+            { 96000f, 44100f }
+        };
+        
+        boolean passed = true;
+        
+        for(float[] rates : conversions) {
+            System.out.printf("%.0f -> %.0f Hz%n", rates[0], rates[1]);
+            
+            for(Resampler.Quality q : Resampler.Quality.values()) {
+                double thdn = thdPlusNoise(rates[0], rates[1], q);
+                double speed = speed(rates[0], rates[1], q);
+                
+                boolean ok = thdn <= limit(q) && speed >= MIN_REAL_TIME;
+                passed &= ok;
+                
+                System.out.printf(
+                    "  %-8s THD+N %7.1f dB (limit %6.1f)  %6.0fx real time (min %.0fx)  %s%n",
+                    q, thdn, limit(q), speed, MIN_REAL_TIME, ok ? "ok" : "FAIL"
+                );
+            }
+        }
+        
+        if(!passed) {
+            System.exit(1);
+        }
+    }
+    
+    private static double limit(Resampler.Quality q) {
+        switch(q) {
+            case FAST:     return FAST_LIMIT_DB;
+            case STANDARD: return STANDARD_LIMIT_DB;
+            default:       return BEST_LIMIT_DB;
+        }
+    }
+    
+    private static double thdPlusNoise(float inRate, float outRate, Resampler.Quality q) {
+        Resampler r = new Resampler(inRate, outRate, CHANNELS, q);
+        
+        float[] block = new float[BLOCK_FRAMES * CHANNELS];
+        float[] out = new float[r.maxOutputSamples(block.length)];
+        
+        final int inFrames = (int)inRate * SECONDS;
+        
+        float[] result = new float[(int)Math.ceil((double)inFrames * outRate / inRate) + BLOCK_FRAMES];
+        int frames = 0;
+        
+        for(int start = 0; start < inFrames; start += BLOCK_FRAMES) {
+            tone(block, start, inRate);
+            
+            int ovalid = r.process(block, block.length, out);
+            
+            /* left channel only, both carry the same tone */
+            for(int i = 0; i < ovalid; i += CHANNELS) {
+                result[frames++] = out[i];
+            }
+        }
+        
+        /* fit a sin + b cos at the output rate */
+        
+        double ss = 0.0, sc = 0.0, cc = 0.0, ys = 0.0, yc = 0.0;
+        
+        final int end = frames - SETTLE_FRAMES;
+        
+        for(int i = SETTLE_FRAMES; i < end; i++) {
+            double t = 2.0 * Math.PI * TONE_HZ * i / outRate;
+            double sin = Math.sin(t);
+            double cos = Math.cos(t);
+            
+            ss += sin * sin;
+            sc += sin * cos;
+            cc += cos * cos;
+            ys += result[i] * sin;
+            yc += result[i] * cos;
+        }
+        
+        double det = ss * cc - sc * sc;
+        double a = (ys * cc - yc * sc) / det;
+        double b = (yc * ss - ys * sc) / det;
+        
+        double signal = 0.0;
+        double residue = 0.0;
+        
+        for(int i = SETTLE_FRAMES; i < end; i++) {
+            double t = 2.0 * Math.PI * TONE_HZ * i / outRate;
+            double fit = a * Math.sin(t) + b * Math.cos(t);
+            double err = result[i] - fit;
+            
+            signal += fit * fit;
+            residue += err * err;
+        }
+        
+        return 10.0 * Math.log10(residue / signal);
+    }
+    
+    private static double speed(float inRate, float outRate, Resampler.Quality q) {
+        Resampler r = new Resampler(inRate, outRate, CHANNELS, q);
+        
+        float[] block = new float[BLOCK_FRAMES * CHANNELS];
+        float[] out = new float[r.maxOutputSamples(block.length)];
+        
+        tone(block, 0, inRate);
+        
+        /* warm up so the timing is of compiled code */
+        for(int i = 0; i < BENCH_BLOCKS / 4; i++) {
+            r.process(block, block.length, out);
+        }
+        
+        long start = System.nanoTime();
+        
+        for(int i = 0; i < BENCH_BLOCKS; i++) {
+            r.process(block, block.length, out);
+        }
+        
+        double seconds = (System.nanoTime() - start) / 1e9;
+        
+        return (double)BENCH_BLOCKS * BLOCK_FRAMES / inRate / seconds;
+    }
+    
+    private static void tone(float[] block, int startFrame, float rate) {
+        for(int i = 0, ch; i < BLOCK_FRAMES; i++) {
+            float v = (float)(AMPLITUDE * Math.sin(2.0 * Math.PI * TONE_HZ * (startFrame + i) / rate));
+            
+            for(ch = 0; ch < CHANNELS; ch++) {
+                block[i * CHANNELS + ch] = v;
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import javax.sound.sampled.AudioFormat;
+
+public final class Block {
+    
+    /*
+     * the buffers one block of audio passes through.
+     * 
+     * allocated once per pipeline and reused for every block.
+     * the source fills the bytes, decoding fills the samples and
+     * later stages work on the samples in place. sinks all see
+     * the same arrays so nothing gets copied on fan-out, which
+     * also means a sink must not change them.
+     * 
+     */
+    
+    private final AudioFormat format;
+    private final int frameCapacity;
+    
+    private final byte[] bytes;
+    private final long[] transfer;
+    private final float[] samples;
+    
+    private int byteCount;
+    private int sampleCount;
+    private int stride = 1;
+    private long frame;
+    
+    public Block(AudioFormat format, int frames) {
+        if(frames < 1) {
+            throw new IllegalArgumentException("frames = " + frames);
+        }
+        
+        this.format = format;
+        this.frameCapacity = frames;
+        
+        samples = new float[frames * format.getChannels()];
+        transfer = new long[samples.length];
+        bytes = new byte[samples.length * Pcm.normalBytesFromBits(format.getSampleSizeInBits())];
+    }
+    
+    public AudioFormat getFormat() {
+        return format;
+    }
+    
+    public int getFrameCapacity() {
+        return frameCapacity;
+    }
+    
+    public byte[] getBytes() {
+        return bytes;
+    }
+    
+    /* scratch space for decoding */
+    public long[] getTransfer() {
+        return transfer;
+    }
+    
+    public float[] getSamples() {
+        return samples;
+    }
+    
+    public int getByteCount() {
+        return byteCount;
+    }
+    
+    public void setByteCount(int byteCount) {
+        this.byteCount = byteCount;
+    }
+    
+    /* 0 when the block was not decoded */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+    
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+    
+    /* the samples hold every stride'th frame of the bytes */
+    public int getStride() {
+        return stride;
+    }
+    
+    public void setStride(int stride) {
+        this.stride = stride;
+    }
+    
+    /* stream position of the first frame in the block */
+    public long getFrame() {
+        return frame;
+    }
+    
+    public void setFrame(long frame) {
+        this.frame = frame;
+    }
+}
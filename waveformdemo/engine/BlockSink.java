@@ -0,0 +1,27 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import java.io.IOException;
+
+public interface BlockSink {
+    
+    /*
+     * the block is shared with every other sink and stage
+     * so it must be treated as read only.
+     * 
+     * a sink that holds back output (a resampler's tail, a file
+     * writer's buffer) should implement java.io.Flushable, it is
+     * flushed when the pipeline finishes.
+     * 
+     */
+    
+    public void accept(Block block) throws IOException;
+}
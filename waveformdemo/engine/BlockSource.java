@@ -0,0 +1,23 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import java.io.IOException;
+
+public interface BlockSource {
+    
+    /*
+     * fills the block's bytes, returns the number of bytes,
+     * 0 if nothing is available yet or -1 at the end.
+     * 
+     */
+    
+    public int read(Block block) throws IOException;
+}
@@ -0,0 +1,16 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import java.io.IOException;
+
+public interface BlockStage {
+    public void process(Block block) throws IOException;
+}
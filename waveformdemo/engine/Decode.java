@@ -0,0 +1,68 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+public class Decode
+implements BlockStage {
+    
+    /*
+     * unpacks the block's bytes to samples.
+     * 
+     * consumers that can't use more than a given number of points
+     * (a display a few hundred pixels wide) set a target width and
+     * only every stride'th frame is decoded, the stride worked out
+     * per block from the frames actually read so a short block is
+     * not thinned out further than it needs to be. a target width
+     * of 0 skips decoding altogether.
+     * 
+     */
+    
+    public static final int FULL_RESOLUTION = Integer.MAX_VALUE;
+    
+    private volatile int targetWidth = FULL_RESOLUTION;
+    
+    public int getTargetWidth() {
+        return targetWidth;
+    }
+    
+    public void setTargetWidth(int targetWidth) {
+        if(targetWidth < 0) {
+            throw new IllegalArgumentException("targetWidth = " + targetWidth);
+        }
+        
+        this.targetWidth = targetWidth;
+    }
+    
+    @Override
+    public void process(Block block) {
+        final int targetWidth = this.targetWidth;
+        
+        if(targetWidth == 0 || !Pcm.isPcm(block.getFormat())) {
+            block.setSampleCount(0);
+            return;
+        }
+        
+        final int channels = block.getFormat().getChannels();
+        final int frames = block.getByteCount() / block.getFormat().getFrameSize();
+        final int stride = Math.max(1, frames / targetWidth);
+        
+        Pcm.unpack(
+            block.getBytes(),
+            block.getTransfer(),
+            block.getSamples(),
+            block.getByteCount(),
+            block.getFormat(),
+            stride
+        );
+        
+        block.setStride(stride);
+        block.setSampleCount((frames + stride - 1) / stride * channels);
+    }
+}
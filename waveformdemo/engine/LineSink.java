@@ -0,0 +1,236 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import java.io.Flushable;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+public class LineSink
+implements BlockSink, Flushable {
+    
+    /*
+     * writes blocks to a SourceDataLine.
+     * 
+     * sometimes the system will claim to support a format but
+     * throw a LineUnavailableException on SourceDataLine.open.
+     * in that case open falls back to 16-bit at a rate the line
+     * will accept and the sink converts the decoded samples, so
+     * it then needs to sit after a full resolution Decode and
+     * before anything that changes the samples.
+     * 
+     */
+    
+    /* rates tried, nearest first, when the line rejects the source format */
+    public static final float[] FALLBACK_SAMPLE_RATES = {
+        48000f, 44100f, 96000f, 88200f, 32000f, 22050f, 16000f, 11025f, 8000f
+    };
+    
+    private final SourceDataLine line;
+    private final int blockBytes;
+    
+    private final Resampler resampler;
+    private final float[] converted;
+    private final byte[] lineBytes;
+    private final int lineNormalBytes;
+    
+    private LineSink(
+        SourceDataLine line,
+        AudioFormat source,
+        int blockFrames,
+        boolean converting,
+        Resampler.Quality quality
+    ) {
+        this.line = line;
+        
+        final AudioFormat lineFormat = line.getFormat();
+        final int samples = blockFrames * source.getChannels();
+        
+        lineNormalBytes = Pcm.normalBytesFromBits(lineFormat.getSampleSizeInBits());
+        
+        if(!converting) {
+            resampler = null;
+            converted = null;
+            lineBytes = null;
+            blockBytes = samples * lineNormalBytes;
+            
+        } else {
+            if(lineFormat.getSampleRate() != source.getSampleRate()) {
+                resampler = new Resampler(
+                    source.getSampleRate(),
+                    lineFormat.getSampleRate(),
+                    source.getChannels(),
+                    quality
+                );
+                converted = new float[resampler.maxOutputSamples(samples)];
+            } else {
+                resampler = null;
+                converted = new float[samples];
+            }
+            
+            lineBytes = new byte[converted.length * lineNormalBytes];
+            blockBytes = lineBytes.length;
+        }
+    }
+    
+    public static LineSink open(
+        AudioFormat fmt,
+        int blockFrames,
+        Resampler.Quality quality
+    ) throws LineUnavailableException {
+        
+        final int blockBytes = (
+            blockFrames * fmt.getChannels() * Pcm.normalBytesFromBits(fmt.getSampleSizeInBits())
+        );
+        
+        SourceDataLine line = openLine(fmt, blockBytes);
+        if(line != null) {
+            return new LineSink(line, fmt, blockFrames, false, quality);
+        }
+        
+        return new LineSink(openConvertedLine(fmt, blockFrames), fmt, blockFrames, true, quality);
+    }
+    
+    public SourceDataLine getLine() {
+        return line;
+    }
+    
+    public boolean isConverting() {
+        return converted != null;
+    }
+    
+    public void prime(int blocks) {
+        
+        /*
+         * feed the output some zero samples
+         * helps prevent the 'stutter' issue.
+         * 
+         */
+        
+        byte[] zeros = new byte[blockBytes];
+        
+        for(int feed = 0; feed < blocks; feed++) {
+            line.write(zeros, 0, zeros.length);
+        }
+    }
+    
+    @Override
+    public void accept(Block block) {
+        if(converted == null) {
+            line.write(block.getBytes(), 0, block.getByteCount());
+            return;
+        }
+        
+        if(block.getStride() != 1 || block.getSampleCount() == 0) {
+            throw new IllegalStateException("converting LineSink needs fully decoded blocks");
+        }
+        
+        int cvalid = block.getSampleCount();
+        if(resampler != null) {
+            cvalid = resampler.process(block.getSamples(), cvalid, converted);
+        } else {
+            System.arraycopy(block.getSamples(), 0, converted, 0, cvalid);
+        }
+        
+        write(cvalid);
+    }
+    
+    @Override
+    public void flush() {
+        
+        /* the resampler still holds half a filter of input */
+        
+        if(resampler != null) {
+            write(resampler.drain(converted));
+        }
+    }
+    
+    private void write(int cvalid) {
+        Pcm.pack(converted, lineBytes, cvalid, line.getFormat());
+        line.write(lineBytes, 0, cvalid * lineNormalBytes);
+    }
+    
+    public void close() {
+        line.flush();
+        line.close();
+    }
+    
+    private static SourceDataLine openLine(AudioFormat fmt, int bufferSize) {
+        SourceDataLine line = null;
+        
+        try {
+            line = AudioSystem.getSourceDataLine(fmt);
+            line.open(fmt, bufferSize);
+            
+            return line;
+            
+        } catch(LineUnavailableException lue) {
+        } catch(IllegalArgumentException iae) {}
+        
+        if(line != null) {
+            line.close();
+        }
+        
+        return null;
+    }
+    
+    private static SourceDataLine openConvertedLine(
+        AudioFormat fmt,
+        int bufferFrames
+    ) throws LineUnavailableException {
+        
+        if(!Pcm.isPcm(fmt)) {
+            throw new LineUnavailableException(
+                "Line rejected " + fmt + " and only PCM can be converted."
+            );
+        }
+        
+        /*
+         * the file's own rate goes first in case only the
+         * bit depth or encoding was refused, then the rest
+         * of the common rates ordered by distance from it.
+         * 
+         */
+        
+        final float srcRate = fmt.getSampleRate();
+        
+        float[] rates = new float[FALLBACK_SAMPLE_RATES.length + 1];
+        rates[0] = srcRate;
+        System.arraycopy(FALLBACK_SAMPLE_RATES, 0, rates, 1, FALLBACK_SAMPLE_RATES.length);
+        
+        for(int i = 2; i < rates.length; i++) {
+            for(int k = i; k > 1 && Math.abs(rates[k] - srcRate) < Math.abs(rates[k - 1] - srcRate); k--) {
+                float swap = rates[k];
+                rates[k] = rates[k - 1];
+                rates[k - 1] = swap;
+            }
+        }
+        
+        final int channels = fmt.getChannels();
+        
+        for(float rate : rates) {
+            AudioFormat candidate = new AudioFormat(rate, 16, channels, true, false);
+            
+            int frames = (int)Math.ceil(bufferFrames * rate / srcRate) + 1;
+            
+            SourceDataLine line = openLine(candidate, frames * candidate.getFrameSize());
+            if(line != null) {
+                return line;
+            }
+        }
+        
+        throw new LineUnavailableException(
+            "No line accepts " + fmt + " or a 16-bit conversion of it."
+        );
+    }
+}
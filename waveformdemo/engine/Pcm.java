@@ -0,0 +1,291 @@
+
+/*
+ * unpack, window and normalBytesFromBits moved here from WaveformDemo,
+ * original author of those: David Staver, 2013
+ * 
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import javax.sound.sampled.AudioFormat;
+
+public final class Pcm {
+    
+    /*
+     * conversions between PCM bytes and normalized float samples.
+     * 
+     */
+    
+    private Pcm() {}
+    
+    public static boolean isPcm(AudioFormat fmt) {
+        return fmt.getEncoding() == AudioFormat.Encoding.PCM_SIGNED
+            || fmt.getEncoding() == AudioFormat.Encoding.PCM_UNSIGNED;
+    }
+    
+    public static float[] unpack(
+        byte[] bytes,
+        long[] transfer,
+        float[] samples,
+        int bvalid,
+        AudioFormat fmt
+    ) {
+        return unpack(bytes, transfer, samples, bvalid, fmt, 1);
+    }
+    
+    public static float[] unpack(
+        byte[] bytes,
+        long[] transfer,
+        float[] samples,
+        int bvalid,
+        AudioFormat fmt,
+        int stride
+    ) {
+        if(fmt.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
+                && fmt.getEncoding() != AudioFormat.Encoding.PCM_UNSIGNED) {
+            
+            return samples;
+        }
+        
+        final int bitsPerSample = fmt.getSampleSizeInBits();
+        final int bytesPerSample = bitsPerSample / 8;
+        final int normalBytes = normalBytesFromBits(bitsPerSample);
+        
+        /*
+         * not the most DRY way to do this but it's a bit more efficient.
+         * otherwise there would either have to be 4 separate methods for
+         * each combination of endianness/signedness or do it all in one
+         * loop and check the format for each sample.
+         * 
+         * a helper array (transfer) allows the logic to be split up
+         * but without being too repetetive.
+         * 
+         * here there are two loops converting bytes to raw long samples.
+         * integral primitives in Java get sign extended when they are
+         * promoted to a larger type so the & 0xffL mask keeps them intact.
+         * 
+         * with a stride above 1 only every stride'th frame is decoded,
+         * after the last channel of a frame the loops jump over the rest.
+         * 
+         */
+        
+        final int channels = fmt.getChannels();
+        final int skip = (stride - 1) * normalBytes * channels;
+        
+        int k = 0;
+        
+        if(fmt.isBigEndian()) {
+            for(int i = 0, ch = 0, b; i < bvalid; i += normalBytes, k++) {
+                transfer[k] = 0L;
+                
+                int least = i + normalBytes - 1;
+                for(b = 0; b < normalBytes; b++) {
+                    transfer[k] |= (bytes[least - b] & 0xffL) << (8 * b);
+                }
+                
+                if(++ch == channels) {
+                    ch = 0;
+                    i += skip;
+                }
+            }
+        } else {
+            for(int i = 0, ch = 0, b; i < bvalid; i += normalBytes, k++) {
+                transfer[k] = 0L;
+                
+                for(b = 0; b < normalBytes; b++) {
+                    transfer[k] |= (bytes[i + b] & 0xffL) << (8 * b);
+                }
+                
+                if(++ch == channels) {
+                    ch = 0;
+                    i += skip;
+                }
+            }
+        }
+        
+        /* the rest only needs to touch what was gathered */
+        
+        final int decoded = k;
+        
+        final long fullScale = (long)Math.pow(2.0, bitsPerSample - 1);
+        
+        /*
+         * the OR is not quite enough to convert,
+         * the signage needs to be corrected.
+         * 
+         */
+        
+        if(fmt.getEncoding() == AudioFormat.Encoding.PCM_SIGNED) {
+            
+            /*
+             * if the samples were signed, they must be
+             * extended to the 64-bit long.
+             * 
+             * the arithmetic right shift in Java  will fill
+             * the left bits with 1's if the MSB is set.
+             * 
+             * so sign extend by first shifting left so that
+             * if the sample is supposed to be negative,
+             * it will shift the sign bit in to the 64-bit MSB
+             * then shift back and fill with 1's.
+             * 
+             * as an example, imagining these were 4-bit samples originally
+             * and the destination is 8-bit, if we have a hypothetical
+             * sample -5 that ought to be negative, the left shift looks
+             * like this:
+             * 
+             *     00001011
+             *  <<  (8 - 4)
+             *  ===========
+             *     10110000
+             * 
+             * (except the destination is 64-bit and the original
+             * bit depth from the file could be anything.)
+             * 
+             * and the right shift now fills with 1's:
+             * 
+             *     10110000
+             *  >>  (8 - 4)
+             *  ===========
+             *     11111011
+             * 
+             */
+            
+            final long signShift = 64L - bitsPerSample;
+            
+            for(int i = 0; i < decoded; i++) {
+                transfer[i] = (
+                    (transfer[i] << signShift) >> signShift
+                );
+            }
+        } else {
+            
+            /*
+             * unsigned samples are easier since they
+             * will be read correctly in to the long.
+             * 
+             * so just sign them:
+             * subtract 2^(bits - 1) so the center is 0.
+             * 
+             */
+            
+            for(int i = 0; i < decoded; i++) {
+                transfer[i] -= fullScale;
+            }
+        }
+        
+        /* finally normalize to range of -1.0f to 1.0f */
+        
+        for(int i = 0; i < decoded; i++) {
+            samples[i] = (float)transfer[i] / (float)fullScale;
+        }
+        
+        return samples;
+    }
+    
+    public static float[] window(
+        float[] samples,
+        int svalid,
+        AudioFormat fmt
+    ) {
+        /*
+         * most basic window function
+         * multiply the window against a sine curve, tapers ends
+         * 
+         * nested loops here show a paradigm for processing multi-channel formats
+         * the interleaved samples can be processed "in place"
+         * inner loop processes individual channels using an offset
+         * 
+         */
+        
+        int channels = fmt.getChannels();
+        int slen = svalid / channels;
+        
+        for(int ch = 0, k, i; ch < channels; ch++) {
+            for(i = ch, k = 0; i < svalid; i += channels) {
+                samples[i] *= Math.sin(Math.PI * k++ / (slen - 1));
+            }
+        }
+        
+        return samples;
+    }
+    
+    public static int normalBytesFromBits(int bitsPerSample) {
+        
+        /*
+         * some formats allow for bit depths in non-multiples of 8.
+         * they will, however, typically pad so the samples are stored
+         * that way. AIFF is one of these formats.
+         * 
+         * so the expression:
+         * 
+         *  bitsPerSample + 7 >> 3
+         * 
+         * computes a division of 8 rounding up (for positive numbers).
+         * 
+         * this is basically equivalent to:
+         * 
+         *  (int)Math.ceil(bitsPerSample / 8.0)
+         * 
+         */
+        
+        return bitsPerSample + 7 >> 3;
+    }
+    
+    public static byte[] pack(
+        float[] samples,
+        byte[] bytes,
+        int svalid,
+        AudioFormat fmt
+    ) {
+        
+        /*
+         * the reverse of unpack: scale back to full scale,
+         * move the center back for unsigned formats and
+         * lay the bytes out in the format's endianness.
+         * 
+         * values outside -1.0f to 1.0f are clipped. the
+         * resampler's ringing can overshoot a little on
+         * material that is already at full scale.
+         * 
+         */
+        
+        final int bitsPerSample = fmt.getSampleSizeInBits();
+        final int normalBytes = normalBytesFromBits(bitsPerSample);
+        final long fullScale = (long)Math.pow(2.0, bitsPerSample - 1);
+        
+        final boolean signed = fmt.getEncoding() == AudioFormat.Encoding.PCM_SIGNED;
+        
+        for(int i = 0, k = 0, b; i < svalid; i++, k += normalBytes) {
+            long raw = Math.round(samples[i] * fullScale);
+            
+            if(raw > fullScale - 1) {
+                raw = fullScale - 1;
+            } else if(raw < -fullScale) {
+                raw = -fullScale;
+            }
+            
+            if(!signed) {
+                raw += fullScale;
+            }
+            
+            if(fmt.isBigEndian()) {
+                int least = k + normalBytes - 1;
+                for(b = 0; b < normalBytes; b++) {
+                    bytes[least - b] = (byte)(raw >>> (8 * b));
+                }
+            } else {
+                for(b = 0; b < normalBytes; b++) {
+                    bytes[k + b] = (byte)(raw >>> (8 * b));
+                }
+            }
+        }
+        
+        return bytes;
+    }
+}
@@ -0,0 +1,104 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Pipeline {
+    
+    /*
+     * source -> stages -> sinks, one block at a time.
+     * 
+     * stages and sinks run in the order they were added so a
+     * sink sees the block as it is at that point: a sink added
+     * right after Decode gets the plain samples, one added after
+     * Window gets the windowed ones. that is how several consumers
+     * branch off the same block without it being copied.
+     * 
+     * the caller drives it with step() so it can pause, seek or
+     * stop between blocks, or hands the whole stream to run().
+     * 
+     */
+    
+    private final BlockSource source;
+    private final Block block;
+    
+    private final List<BlockStage> stages = new ArrayList<BlockStage>();
+    
+    public Pipeline(BlockSource source, Block block) {
+        this.source = source;
+        this.block = block;
+    }
+    
+    public Block getBlock() {
+        return block;
+    }
+    
+    public Pipeline add(BlockStage stage) {
+        stages.add(stage);
+        return this;
+    }
+    
+    public Pipeline tap(BlockSink sink) {
+        stages.add(new Tap(sink));
+        return this;
+    }
+    
+    public int step() throws IOException {
+        int bread = source.read(block);
+        
+        if(bread > 0) {
+            for(int i = 0; i < stages.size(); i++) {
+                stages.get(i).process(block);
+            }
+        }
+        
+        return bread;
+    }
+    
+    public void run() throws IOException {
+        while(step() != -1);
+        finish();
+    }
+    
+    public void finish() throws IOException {
+        for(BlockStage stage : stages) {
+            if(stage instanceof Flushable) {
+                ((Flushable)stage).flush();
+            }
+        }
+    }
+    
+    private static final class Tap
+    implements BlockStage, Flushable {
+        
+        private final BlockSink sink;
+        
+        private Tap(BlockSink sink) {
+            this.sink = sink;
+        }
+        
+        @Override
+        public void process(Block block) throws IOException {
+            sink.accept(block);
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            if(sink instanceof Flushable) {
+                ((Flushable)sink).flush();
+            }
+        }
+    }
+}
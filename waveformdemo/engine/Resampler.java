@@ -0,0 +1,254 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import java.util.Arrays;
+
+public class Resampler {
+    
+    /*
+     * streaming band-limited sample rate converter.
+     * 
+     * each output frame is a weighted sum of the input frames
+     * around it. the weights are a Kaiser windowed sinc evaluated
+     * at the fractional distance between the output instant and
+     * the input frames. rather than evaluate that per frame the
+     * filter is precomputed for a number of fractional offsets
+     * (phases) and the two nearest are interpolated linearly.
+     * 
+     * the converter keeps just enough of the previous input to
+     * span the filter so latency is half the filter length
+     * regardless of the block size.
+     * 
+     */
+    
+    public enum Quality {
+        
+        /*
+         * taps: input frames each output frame is computed from.
+         * phases: precomputed fractional offsets.
+         * beta: Kaiser window shape, higher means more stopband
+         *  attenuation at the cost of a wider transition band.
+         * rolloff: cutoff as a fraction of the lower Nyquist.
+         * 
+         */
+        
+        FAST     (16,  64,  5.0, 0.90),
+        STANDARD (32, 128,  7.5, 0.94),
+        BEST     (64, 256, 10.0, 0.96);
+        
+        private final int taps;
+        private final int phases;
+        private final double beta;
+        private final double rolloff;
+        
+        private Quality(int taps, int phases, double beta, double rolloff) {
+            this.taps = taps;
+            this.phases = phases;
+            this.beta = beta;
+            this.rolloff = rolloff;
+        }
+    }
+    
+    private final int channels;
+    private final int taps;
+    private final int phases;
+    private final double step;
+    
+    private final float[] bank;
+    private final float[] coeffs;
+    private final float[] silence;
+    
+    private float[] history;
+    private int hframes;
+    private double pos;
+    
+    public Resampler(
+        float inRate,
+        float outRate,
+        int channels,
+        Quality quality
+    ) {
+        if(!(inRate > 0f) || !(outRate > 0f) || channels < 1) {
+            throw new IllegalArgumentException(
+                "inRate = " + inRate + ", outRate = " + outRate + ", channels = " + channels
+            );
+        }
+        
+        this.channels = channels;
+        this.taps = quality.taps;
+        this.phases = quality.phases;
+        this.step = (double)inRate / outRate;
+        
+        /* when downsampling the cutoff moves to the output's Nyquist */
+        
+        this.bank = makeBank(
+            taps, phases, quality.beta,
+            quality.rolloff * Math.min(1.0, (double)outRate / inRate)
+        );
+        
+        this.coeffs = new float[taps];
+        this.silence = new float[taps / 2 * channels];
+        this.history = new float[taps * 2 * channels];
+        
+        reset();
+    }
+    
+    public void reset() {
+        
+        /*
+         * prime with silence so the first output frame
+         * lines up exactly with the first input frame.
+         * 
+         */
+        
+        Arrays.fill(history, 0f);
+        hframes = taps / 2 - 1;
+        pos = hframes;
+    }
+    
+    public int getLatencyFrames() {
+        return taps / 2;
+    }
+    
+    public int maxOutputSamples(int svalid) {
+        return ((int)Math.ceil(svalid / channels / step) + 1) * channels;
+    }
+    
+    public int process(float[] samples, int svalid, float[] out) {
+        final int half = taps / 2;
+        final int inFrames = svalid / channels;
+        
+        if((hframes + inFrames) * channels > history.length) {
+            history = Arrays.copyOf(history, (hframes + inFrames) * channels);
+        }
+        
+        System.arraycopy(samples, 0, history, hframes * channels, inFrames * channels);
+        hframes += inFrames;
+        
+        int ovalid = 0;
+        
+        for(int i, p, t, ch, s, base; (i = (int)pos) + half < hframes; pos += step) {
+            
+            /* blend the two phases either side of the fractional offset */
+            
+            double fp = (pos - i) * phases;
+            p = (int)fp;
+            float w = (float)(fp - p);
+            
+            int lo = p * taps;
+            int hi = lo + taps;
+            for(t = 0; t < taps; t++) {
+                coeffs[t] = bank[lo + t] + w * (bank[hi + t] - bank[lo + t]);
+            }
+            
+            base = (i - half + 1) * channels;
+            for(ch = 0; ch < channels; ch++) {
+                float acc = 0f;
+                for(t = 0, s = base + ch; t < taps; t++, s += channels) {
+                    acc += coeffs[t] * history[s];
+                }
+                out[ovalid++] = acc;
+            }
+        }
+        
+        /* drop the frames no later output frame will reach back to */
+        
+        int spent = Math.min((int)pos - half + 1, hframes);
+        if(spent > 0) {
+            System.arraycopy(
+                history, spent * channels, history, 0, (hframes - spent) * channels
+            );
+            hframes -= spent;
+            pos -= spent;
+        }
+        
+        return ovalid;
+    }
+    
+    public int drain(float[] out) {
+        
+        /*
+         * pushes the last half filter of input through
+         * and readies the converter for a new stream.
+         * 
+         */
+        
+        int ovalid = process(silence, silence.length, out);
+        reset();
+        
+        return ovalid;
+    }
+    
+    private static float[] makeBank(
+        int taps,
+        int phases,
+        double beta,
+        double cutoff
+    ) {
+        
+        /*
+         * one extra row so phase p + 1 always exists for the blend.
+         * each row is normalized to unity gain at DC, otherwise the
+         * truncated sinc lets the level wobble with the phase.
+         * 
+         */
+        
+        final float[] bank = new float[(phases + 1) * taps];
+        final int half = taps / 2;
+        final double norm = bessel0(beta);
+        
+        for(int p = 0, t; p <= phases; p++) {
+            final int row = p * taps;
+            
+            double sum = 0.0;
+            
+            for(t = 0; t < taps; t++) {
+                double d = t - half + 1 - (double)p / phases;
+                double r = d / half;
+                
+                if(r <= -1.0 || r >= 1.0) {
+                    continue;
+                }
+                
+                double x = Math.PI * cutoff * d;
+                double sinc = x == 0.0 ? 1.0 : Math.sin(x) / x;
+                double kaiser = bessel0(beta * Math.sqrt(1.0 - r * r)) / norm;
+                
+                double h = cutoff * sinc * kaiser;
+                
+                bank[row + t] = (float)h;
+                sum += h;
+            }
+            
+            for(t = 0; t < taps; t++) {
+                bank[row + t] /= sum;
+            }
+        }
+        
+        return bank;
+    }
+    
+    private static double bessel0(double x) {
+        
+        /* zeroth order modified Bessel function of the first kind */
+        
+        double sum = 1.0;
+        double term = 1.0;
+        double halfx = x / 2.0;
+        
+        for(int k = 1; term > sum * 1e-12; k++) {
+            term *= (halfx / k) * (halfx / k);
+            sum += term;
+        }
+        
+        return sum;
+    }
+}
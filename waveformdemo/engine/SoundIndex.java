@@ -0,0 +1,413 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import java.util.Arrays;
+
+import javax.sound.sampled.AudioFormat;
+
+public class SoundIndex {
+    
+    /*
+     * a coarse map of where the sound is in a recording.
+     * 
+     * the level of every block of blockFrames frames is kept
+     * as whole dBFS in a byte. silence regions (runs of quiet
+     * blocks long enough to be worth skipping) and onsets (a
+     * sharp rise in level out of the quiet) are derived from
+     * that and kept as sorted block numbers so every query is
+     * a binary search.
+     * 
+     * the index is written next to the audio as <name>.idx and
+     * is thrown away if the audio's length or date changes.
+     * 
+     */
+    
+    private static final int MAGIC = 0x57464958; // "WFIX"
+    private static final int VERSION = 1;
+    
+    /* level below which a block is silent, rise that marks an onset */
+    public static final int SILENCE_DB = -50;
+    public static final int ONSET_DB = 9;
+    
+    /* shorter silences are not worth skipping */
+    public static final float MIN_SILENCE_SEC = 0.5f;
+    
+    private static final int FLOOR_DB = -127;
+    
+    private final int blockFrames;
+    private final byte[] levels;
+    
+    private final int[] silenceStarts;
+    private final int[] silenceEnds;
+    private final int[] onsets;
+    
+    private SoundIndex(
+        int blockFrames,
+        byte[] levels,
+        int[] silenceStarts,
+        int[] silenceEnds,
+        int[] onsets
+    ) {
+        this.blockFrames = blockFrames;
+        this.levels = levels;
+        this.silenceStarts = silenceStarts;
+        this.silenceEnds = silenceEnds;
+        this.onsets = onsets;
+    }
+    
+    public int getBlockFrames() {
+        return blockFrames;
+    }
+    
+    public int levelAt(long frame) {
+        long block = frame / blockFrames;
+        
+        return block < levels.length ? levels[(int)block] : FLOOR_DB;
+    }
+    
+    public boolean isSilent(long frame) {
+        return silenceEnd(frame) != frame;
+    }
+    
+    public long silenceEnd(long frame) {
+        
+        /* the end of the silence frame is in, or frame itself */
+        
+        int block = toBlock(frame);
+        int k = upperBound(silenceStarts, block) - 1;
+        
+        if(k >= 0 && block < silenceEnds[k]) {
+            return (long)silenceEnds[k] * blockFrames;
+        }
+        
+        return frame;
+    }
+    
+    public long nextSound(long frame) {
+        
+        /*
+         * start of the first non-silent region after frame or -1.
+         * sound starts where silence ends, and the first silence
+         * ending after frame is either the one frame is in or the
+         * one following the sound frame is in.
+         * 
+         */
+        
+        int k = upperBound(silenceEnds, toBlock(frame));
+        
+        if(k < silenceEnds.length && silenceEnds[k] < levels.length) {
+            return (long)silenceEnds[k] * blockFrames;
+        }
+        
+        return -1L;
+    }
+    
+    public long nextOnset(long frame) {
+        int k = upperBound(onsets, toBlock(frame));
+        
+        return k < onsets.length ? (long)onsets[k] * blockFrames : -1L;
+    }
+    
+    private int toBlock(long frame) {
+        return (int)Math.min(frame / blockFrames, Integer.MAX_VALUE);
+    }
+    
+    private static int upperBound(int[] sorted, int key) {
+        
+        /* index of the first element greater than key */
+        
+        int lo = 0;
+        int hi = sorted.length;
+        
+        while(lo < hi) {
+            int mid = lo + hi >>> 1;
+            if(sorted[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        
+        return lo;
+    }
+    
+    public static File fileFor(File audio) {
+        return new File(audio.getPath() + ".idx");
+    }
+    
+    public void save(File audio) throws IOException {
+        
+        /*
+         * written to a temporary file first and moved over the
+         * old index once complete, a failed write never leaves
+         * behind a partial index with a valid header.
+         * 
+         */
+        
+        final File idx = fileFor(audio);
+        final File tmp = new File(idx.getPath() + ".tmp");
+        
+        boolean moved = false;
+        
+        try {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp))
+            );
+            
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(audio.length());
+                out.writeLong(audio.lastModified());
+                out.writeInt(blockFrames);
+                
+                out.writeInt(levels.length);
+                out.write(levels);
+                
+                writeInts(out, silenceStarts);
+                writeInts(out, silenceEnds);
+                writeInts(out, onsets);
+                
+            } finally {
+                out.close();
+            }
+            
+            Files.move(tmp.toPath(), idx.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            moved = true;
+            
+        } finally {
+            if(!moved) {
+                tmp.delete();
+            }
+        }
+    }
+    
+    public static SoundIndex load(File audio) {
+        
+        /*
+         * null if there is no index, it is for an older version
+         * of the file or it can't be read. it is only a cache so
+         * anything wrong with it just means building it again.
+         * 
+         */
+        
+        File idx = fileFor(audio);
+        if(!idx.isFile()) {
+            return null;
+        }
+        
+        final long size = idx.length();
+        
+        try {
+            DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(idx))
+            );
+            
+            try {
+                if(in.readInt() != MAGIC
+                        || in.readInt() != VERSION
+                        || in.readLong() != audio.length()
+                        || in.readLong() != audio.lastModified()) {
+                    
+                    return null;
+                }
+                
+                int blockFrames = in.readInt();
+                if(blockFrames < 1) {
+                    return null;
+                }
+                
+                byte[] levels = new byte[checkCount(in.readInt(), 1, size)];
+                in.readFully(levels);
+                
+                int[] starts = readInts(in, size);
+                int[] ends = readInts(in, size);
+                int[] onsets = readInts(in, size);
+                
+                if(starts.length != ends.length || in.read() != -1) {
+                    return null;
+                }
+                
+                return new SoundIndex(blockFrames, levels, starts, ends, onsets);
+                
+            } finally {
+                in.close();
+            }
+            
+        } catch(IOException ioe) {
+            return null;
+        }
+    }
+    
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for(int v : values) {
+            out.writeInt(v);
+        }
+    }
+    
+    private static int[] readInts(DataInputStream in, long size) throws IOException {
+        int[] values = new int[checkCount(in.readInt(), 4, size)];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        
+        return values;
+    }
+    
+    private static int checkCount(int count, int width, long size) throws IOException {
+        
+        /* a damaged count shouldn't turn into a huge allocation */
+        
+        if(count < 0 || (long)count * width > size) {
+            throw new IOException("bad count " + count + " in index");
+        }
+        
+        return count;
+    }
+    
+    public static class Builder
+    implements BlockSink {
+        
+        /*
+         * takes unpacked samples in whatever block sizes
+         * they arrive in and measures them in blocks of
+         * blockFrames.
+         * 
+         */
+        
+        private final int blockFrames;
+        private final int blockSamples;
+        private final int minSilentBlocks;
+        
+        private byte[] levels = new byte[256];
+        private int blocks;
+        
+        private double sumSquares;
+        private int pending;
+        
+        public Builder(AudioFormat fmt, int blockFrames) {
+            this.blockFrames = blockFrames;
+            this.blockSamples = blockFrames * fmt.getChannels();
+            this.minSilentBlocks = Math.max(
+                1, (int)Math.ceil(MIN_SILENCE_SEC * fmt.getFrameRate() / blockFrames)
+            );
+        }
+        
+        @Override
+        public void accept(Block block) {
+            if(block.getStride() != 1) {
+                throw new IllegalStateException("the index needs fully decoded blocks");
+            }
+            
+            add(block.getSamples(), block.getSampleCount());
+        }
+        
+        public void add(float[] samples, int svalid) {
+            for(int i = 0; i < svalid; i++) {
+                sumSquares += samples[i] * samples[i];
+                
+                if(++pending == blockSamples) {
+                    endBlock();
+                }
+            }
+        }
+        
+        private void endBlock() {
+            double rms = Math.sqrt(sumSquares / pending);
+            
+            int db = FLOOR_DB;
+            if(rms > 0.0) {
+                db = (int)Math.max(FLOOR_DB, Math.min(0L, Math.round(20.0 * Math.log10(rms))));
+            }
+            
+            if(blocks == levels.length) {
+                levels = Arrays.copyOf(levels, blocks * 2);
+            }
+            
+            levels[blocks++] = (byte)db;
+            
+            sumSquares = 0.0;
+            pending = 0;
+        }
+        
+        public SoundIndex build() {
+            if(pending > 0) {
+                endBlock();
+            }
+            
+            final byte[] lv = Arrays.copyOf(levels, blocks);
+            
+            int[] starts = new int[16];
+            int[] ends = new int[16];
+            int regions = 0;
+            
+            int[] rises = new int[16];
+            int onsetCount = 0;
+            
+            int run = 0;
+            int prev = FLOOR_DB;
+            
+            for(int b = 0; b <= lv.length; b++) {
+                boolean silent = b < lv.length && lv[b] < SILENCE_DB;
+                
+                if(silent) {
+                    run++;
+                    
+                } else {
+                    if(run >= minSilentBlocks) {
+                        if(regions == starts.length) {
+                            starts = Arrays.copyOf(starts, regions * 2);
+                            ends = Arrays.copyOf(ends, regions * 2);
+                        }
+                        
+                        starts[regions] = b - run;
+                        ends[regions++] = b;
+                    }
+                    
+                    run = 0;
+                    
+                    if(b < lv.length && lv[b] - prev >= ONSET_DB) {
+                        if(onsetCount == rises.length) {
+                            rises = Arrays.copyOf(rises, onsetCount * 2);
+                        }
+                        
+                        rises[onsetCount++] = b;
+                    }
+                }
+                
+                if(b < lv.length) {
+                    prev = lv[b];
+                }
+            }
+            
+            return new SoundIndex(
+                blockFrames,
+                lv,
+                Arrays.copyOf(starts, regions),
+                Arrays.copyOf(ends, regions),
+                Arrays.copyOf(rises, onsetCount)
+            );
+        }
+    }
+}
@@ -0,0 +1,84 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import java.io.IOException;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+
+public class StreamSource
+implements BlockSource {
+    
+    private final AudioInputStream in;
+    private final int frameSize;
+    
+    private long frame;
+    
+    public StreamSource(AudioInputStream in) {
+        this.in = in;
+        this.frameSize = in.getFormat().getFrameSize();
+    }
+    
+    @Override
+    public int read(Block block) throws IOException {
+        int bread = in.read(block.getBytes());
+        
+        if(bread >= 0) {
+            block.setByteCount(bread);
+            block.setSampleCount(0);
+            block.setFrame(frame);
+            
+            frame += bread / frameSize;
+        }
+        
+        return bread;
+    }
+    
+    /* position of the next frame read */
+    public long getFrame() {
+        return frame;
+    }
+    
+    public long skip(long frames) throws IOException {
+        
+        /*
+         * a stream without a length (a tailed file) can only skip
+         * what is already there. asking AudioInputStream for more
+         * makes it probe for the end with a one byte read, which
+         * such a stream can't do for multi-byte frames.
+         * 
+         */
+        
+        if(in.getFrameLength() == AudioSystem.NOT_SPECIFIED) {
+            frames = Math.min(frames, in.available() / frameSize);
+        }
+        
+        if(frames <= 0L) {
+            return 0L;
+        }
+        
+        long skipped = in.skip(frames * frameSize) / frameSize;
+        frame += skipped;
+        
+        return skipped;
+    }
+    
+    public long skipToLiveEdge() throws IOException {
+        
+        /* for a growing stream, skips everything read has yet to return */
+        
+        return skip(in.available() / frameSize);
+    }
+    
+    public void close() throws IOException {
+        in.close();
+    }
+}
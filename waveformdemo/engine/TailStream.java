@@ -0,0 +1,247 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+public class TailStream
+extends InputStream {
+    
+    /*
+     * reads a WAV file that is still being recorded.
+     * 
+     * the recorder only patches the RIFF and data lengths
+     * when it finishes (if at all) so the lengths in the header
+     * are ignored. the end of the data is wherever the file
+     * currently ends, rounded down to a whole frame.
+     * 
+     * reading starts at the live edge and only moves forward,
+     * nothing is read twice. when there is nothing new a read
+     * waits briefly then returns 0 so the caller gets a chance
+     * to notice a stop or pause.
+     * 
+     * there is no telling a finished recording from a paused
+     * recorder so the stream never returns -1 on its own, only
+     * after close. playback of a tailed file ends with Stop.
+     * 
+     */
+    
+    /* how often and how long a read polls for new frames */
+    public static final long POLL_MS = 10L;
+    public static final long WAIT_MS = 100L;
+    
+    private final RandomAccessFile file;
+    private final int frameSize;
+    
+    private long pos;
+    private volatile boolean closed;
+    
+    private TailStream(RandomAccessFile file, int frameSize) throws IOException {
+        this.file = file;
+        this.frameSize = frameSize;
+        
+        long dataStart = file.getFilePointer();
+        pos = dataStart + (file.length() - dataStart) / frameSize * frameSize;
+    }
+    
+    public static AudioInputStream open(File f)
+    throws IOException, UnsupportedAudioFileException {
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        
+        try {
+            AudioFormat fmt = readHeader(raf);
+            
+            return new AudioInputStream(
+                new TailStream(raf, fmt.getFrameSize()), fmt, AudioSystem.NOT_SPECIFIED
+            );
+            
+        } catch(IOException ioe) {
+            raf.close();
+            throw ioe;
+        } catch(UnsupportedAudioFileException uafe) {
+            raf.close();
+            throw uafe;
+        }
+    }
+    
+    public static AudioFormat getFormat(File f)
+    throws IOException, UnsupportedAudioFileException {
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        
+        try {
+            return readHeader(raf);
+        } finally {
+            raf.close();
+        }
+    }
+    
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int want = len / frameSize * frameSize;
+        
+        for(long waited = 0L; !closed; waited += POLL_MS) {
+            long avail = (file.length() - pos) / frameSize * frameSize;
+            
+            if(avail > 0L || want == 0) {
+                int n = (int)Math.min(avail, want);
+                
+                file.seek(pos);
+                file.readFully(b, off, n);
+                pos += n;
+                
+                return n;
+            }
+            
+            if(waited >= WAIT_MS) {
+                return 0;
+            }
+            
+            try {
+                Thread.sleep(POLL_MS);
+            } catch(InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+        }
+        
+        return -1;
+    }
+    
+    @Override
+    public int read() throws IOException {
+        if(frameSize != 1) {
+            throw new IOException("cannot read a single byte if frame size > 1");
+        }
+        
+        byte[] one = new byte[1];
+        
+        int n;
+        while((n = read(one, 0, 1)) == 0);
+        
+        return n == -1 ? -1 : one[0] & 0xff;
+    }
+    
+    @Override
+    public long skip(long n) throws IOException {
+        
+        /* moves the position without reading, never past the live edge */
+        
+        long skipped = Math.min(n / frameSize * frameSize, available());
+        if(skipped <= 0L) {
+            return 0L;
+        }
+        
+        pos += skipped;
+        
+        return skipped;
+    }
+    
+    @Override
+    public int available() throws IOException {
+        long avail = closed ? 0L : (file.length() - pos) / frameSize * frameSize;
+        
+        return (int)Math.min(avail, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        file.close();
+    }
+    
+    private static AudioFormat readHeader(RandomAccessFile raf)
+    throws IOException, UnsupportedAudioFileException {
+        
+        /*
+         * walks the chunks up to "data" and leaves the file
+         * pointer at the first sample. RF64 only differs by
+         * keeping its real lengths in a ds64 chunk, which are
+         * ignored here anyway.
+         * 
+         */
+        
+        String riff = readId(raf);
+        raf.skipBytes(4);
+        String wave = readId(raf);
+        
+        if(!(riff.equals("RIFF") || riff.equals("RF64")) || !wave.equals("WAVE")) {
+            throw new UnsupportedAudioFileException("Only WAV files can be tailed.");
+        }
+        
+        AudioFormat fmt = null;
+        
+        for(;;) {
+            String id = readId(raf);
+            long size = readLE(raf, 4) & 0xffffffffL;
+            
+            if(id.equals("data")) {
+                if(fmt == null) {
+                    throw new UnsupportedAudioFileException("No fmt chunk before data.");
+                }
+                
+                return fmt;
+            }
+            
+            /* chunks are padded to an even length */
+            long next = raf.getFilePointer() + size + (size & 1L);
+            
+            if(id.equals("fmt ")) {
+                int tag = readLE(raf, 2);
+                int channels = readLE(raf, 2);
+                int rate = readLE(raf, 4);
+                raf.skipBytes(4); // byte rate
+                int blockAlign = readLE(raf, 2);
+                int bits = readLE(raf, 2);
+                
+                /* WAVE_FORMAT_EXTENSIBLE: the real tag leads the subformat GUID */
+                if(tag == 0xfffe && size >= 40L) {
+                    raf.skipBytes(8);
+                    tag = readLE(raf, 2);
+                }
+                
+                if(tag != 1) {
+                    throw new UnsupportedAudioFileException("Only PCM WAV files can be tailed.");
+                }
+                
+                /* 8-bit WAV is the one unsigned case */
+                fmt = new AudioFormat(
+                    bits <= 8 ? AudioFormat.Encoding.PCM_UNSIGNED : AudioFormat.Encoding.PCM_SIGNED,
+                    rate, bits, channels, blockAlign, rate, false
+                );
+            }
+            
+            raf.seek(next);
+        }
+    }
+    
+    private static String readId(RandomAccessFile raf) throws IOException {
+        byte[] id = new byte[4];
+        raf.readFully(id);
+        
+        return new String(id, "US-ASCII");
+    }
+    
+    private static int readLE(RandomAccessFile raf, int n) throws IOException {
+        int value = 0;
+        for(int b = 0; b < n; b++) {
+            value |= raf.readUnsignedByte() << (8 * b);
+        }
+        
+        return value;
+    }
+}
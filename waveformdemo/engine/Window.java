@@ -0,0 +1,31 @@
+
+/*
+ * This work is licensed under the Creative Commons
+ * Attribution-ShareAlike 3.0 Unported License.
+ * To view a copy of this license, visit
+ * http://creativecommons.org/licenses/by-sa/3.0/
+ * 
+ */
+
+package waveformdemo.engine;
+
+public class Window
+implements BlockStage {
+    
+    private volatile boolean enabled = true;
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    @Override
+    public void process(Block block) {
+        if(enabled) {
+            Pcm.window(block.getSamples(), block.getSampleCount(), block.getFormat());
+        }
+    }
+}